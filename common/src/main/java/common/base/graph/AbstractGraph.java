@@ -17,14 +17,80 @@ abstract class AbstractGraph<N> implements Graph<N> {
         if (!(o instanceof Graph)) {
             return false;
         }
-        Graph<?> other = (Graph<?>) o;
-        return nodes().equals(other.nodes())
-                && edges().equals(other.edges());
+        if (!(o instanceof AbstractGraph)) {
+            Graph<?> other = (Graph<?>) o;
+            return nodes().equals(other.nodes())
+                    && edges().equals(other.edges());
+        }
+        @SuppressWarnings("unchecked")
+        AbstractGraph<N> other = (AbstractGraph<N>) o;
+        // 结构哈希不同的图一定不相等, 可以直接拒绝
+        if (hashCode() != other.hashCode()
+                || getEdgeCount() != other.getEdgeCount()
+                || !nodes().equals(other.nodes())) {
+            return false;
+        }
+        for (N node : nodes()) {
+            for (N successor : successors(node)) {
+                if (!other.hasEdgeConnecting(node, successor)) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
+    /**
+     * 与节点、边的顺序无关的结构哈希, 子类可以增量维护以避免每次遍历
+     *
+     * @return
+     */
     @Override
     public int hashCode() {
-        return edges().hashCode();
+        int nodeHash = 0;
+        int edgeHash = 0;
+        for (N node : nodes()) {
+            nodeHash += nodeHash(node);
+            for (N successor : successors(node)) {
+                edgeHash += edgeHash(node, successor);
+            }
+        }
+        return structuralHash(nodeHash, edgeHash);
+    }
+
+    /**
+     * 获取边的数量
+     *
+     * @return
+     */
+    public abstract int getEdgeCount();
+
+    static int structuralHash(int nodeHash, int edgeHash) {
+        return 31 * nodeHash + edgeHash;
+    }
+
+    static int nodeHash(Object node) {
+        return mix(node.hashCode());
+    }
+
+    /**
+     * 边的哈希需要区分方向, 并且打散后再求和, 避免 (a->b, c->d) 与 (a->d, c->b) 冲突
+     *
+     * @param nodeU
+     * @param nodeV
+     * @return
+     */
+    static int edgeHash(Object nodeU, Object nodeV) {
+        return mix(31 * mix(nodeU.hashCode()) + nodeV.hashCode());
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
     }
 
     @Override
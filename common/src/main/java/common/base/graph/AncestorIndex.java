@@ -0,0 +1,176 @@
+package common.base.graph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static common.base.graph.GraphUtil.NODE_NOT_IN_GRAPH;
+
+/**
+ * DAG 的祖先索引, 每个节点保存一个包含自身在内的祖先位图
+ * <p>
+ * 每个位图约 n 位, 整个索引占用 O(n²) 内存, 只应在需要反复查询最近公共祖先时构建
+ * <p>
+ * 加点、加边时增量维护, 删点、删边时需要调用方丢弃后重建
+ *
+ * @author zhaoju
+ */
+final class AncestorIndex<N> {
+
+    private final Map<N, Integer> nodeIds;
+    private final List<N> idNodes;
+    private final List<BitSet> ancestors;
+
+    private AncestorIndex(int expectedSize) {
+        nodeIds = Maps.newHashMapWithExpectedSize(expectedSize);
+        idNodes = Lists.newArrayListWithCapacity(expectedSize);
+        ancestors = Lists.newArrayListWithCapacity(expectedSize);
+    }
+
+    /**
+     * 按拓扑序构建索引, 前驱的祖先集合总是先于当前节点算好
+     *
+     * @param graph
+     * @param <N1>
+     * @return
+     */
+    static <N1> AncestorIndex<N1> of(Graph<N1> graph) {
+        AncestorIndex<N1> index = new AncestorIndex<>(graph.nodes().size());
+        for (N1 node : GraphUtil.topologicalSort(graph)) {
+            BitSet bitSet = index.ancestorBits(index.addNode(node));
+            for (N1 predecessor : graph.predecessors(node)) {
+                bitSet.or(index.ancestorBits(index.nodeIds.get(predecessor)));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * 登记一个新节点, 已存在时返回原有编号
+     *
+     * @param node
+     * @return
+     */
+    int addNode(N node) {
+        Integer id = nodeIds.get(node);
+        if (id != null) {
+            return id;
+        }
+        id = idNodes.size();
+        nodeIds.put(node, id);
+        idNodes.add(node);
+        BitSet bitSet = new BitSet();
+        bitSet.set(id);
+        ancestors.add(bitSet);
+        return id;
+    }
+
+    /**
+     * 加边 nodeU -> nodeV 后, 把 nodeU 的祖先并入 nodeV 及其所有后继
+     *
+     * @param graph 已经包含该边的图
+     * @param nodeU
+     * @param nodeV
+     */
+    void addEdge(Graph<N> graph, N nodeU, N nodeV) {
+        int sourceId = addNode(nodeU);
+        BitSet source = ancestorBits(sourceId);
+        addNode(nodeV);
+
+        Set<N> visitedNodes = Sets.newHashSet();
+        Queue<N> queuedNodes = Lists.newLinkedList();
+        visitedNodes.add(nodeV);
+        queuedNodes.offer(nodeV);
+        while (!queuedNodes.isEmpty()) {
+            N currentNode = queuedNodes.poll();
+            BitSet target = ancestorBits(nodeIds.get(currentNode));
+            if (target.get(sourceId)) {
+                // 祖先集合是传递闭包, 包含 nodeU 就包含 nodeU 的所有祖先, 后继也必然包含, 不必继续传播
+                continue;
+            }
+            target.or(source);
+            for (N successor : graph.successors(currentNode)) {
+                if (visitedNodes.add(successor)) {
+                    queuedNodes.offer(successor);
+                }
+            }
+        }
+    }
+
+    /**
+     * ancestor 是否为 node 的祖先 (包含 node 自身)
+     *
+     * @param ancestor
+     * @param node
+     * @return
+     */
+    boolean isAncestor(N ancestor, N node) {
+        Integer ancestorId = nodeIds.get(ancestor);
+        return ancestorId != null && ancestorBits(checkedId(node)).get(ancestorId);
+    }
+
+    /**
+     * 获取 node 的所有真祖先, 不包含 node 自身
+     *
+     * @param node
+     * @return
+     */
+    Set<N> strictAncestors(N node) {
+        int id = checkedId(node);
+        BitSet bitSet = (BitSet) ancestorBits(id).clone();
+        bitSet.clear(id);
+        return toNodes(bitSet);
+    }
+
+    /**
+     * 获取 nodeU 和 nodeV 的最近公共祖先, 公共祖先中不是其他公共祖先的祖先的节点
+     * <p>
+     * 节点是另一节点的祖先时, 结果就是该节点本身
+     *
+     * @param nodeU
+     * @param nodeV
+     * @return
+     */
+    Set<N> lowestCommonAncestors(N nodeU, N nodeV) {
+        BitSet common = (BitSet) ancestorBits(checkedId(nodeU)).clone();
+        common.and(ancestorBits(checkedId(nodeV)));
+
+        // 构建时按拓扑序编号, 倒序遍历先遇到后代; 选中一个节点后把它的祖先从候选中去掉,
+        // 祖先集合是传递闭包, 被覆盖的节点不会再被访问, 只有结果节点需要合并位图
+        BitSet result = new BitSet();
+        for (int id = common.previousSetBit(common.length() - 1); id >= 0; id = common.previousSetBit(id - 1)) {
+            BitSet bitSet = ancestorBits(id);
+            // 增量加边后编号不一定是拓扑序, 之前选中的节点可能是当前节点的祖先
+            result.andNot(bitSet);
+            result.set(id);
+            common.andNot(bitSet);
+        }
+        return toNodes(result);
+    }
+
+    private Set<N> toNodes(BitSet bitSet) {
+        Set<N> result = Sets.newLinkedHashSetWithExpectedSize(bitSet.cardinality());
+        for (int id = bitSet.nextSetBit(0); id >= 0; id = bitSet.nextSetBit(id + 1)) {
+            result.add(idNodes.get(id));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private BitSet ancestorBits(int id) {
+        return ancestors.get(id);
+    }
+
+    private int checkedId(N node) {
+        Integer id = nodeIds.get(node);
+        checkArgument(id != null, NODE_NOT_IN_GRAPH, node);
+        return id;
+    }
+}
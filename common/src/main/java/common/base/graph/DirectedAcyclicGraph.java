@@ -1,9 +1,12 @@
 package common.base.graph;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static common.base.graph.GraphUtil.GRAPH_HAS_CYCLE;
@@ -14,6 +17,12 @@ import static common.base.graph.GraphUtil.GRAPH_HAS_CYCLE;
  */
 public class DirectedAcyclicGraph<N> extends DirectedGraph<N> implements Graph<N> {
 
+    /**
+     * 祖先索引, 首次调用 lowestCommonAncestors 时构建, 加点加边时增量维护, 删点删边时丢弃.
+     * 每个节点保存一个约 n 位的位图, 内存为 O(n²)
+     */
+    private AncestorIndex<N> ancestorIndex;
+
     private DirectedAcyclicGraph(int edgeCount, Map<N, DirectedGraphNode<N>> nodeMap) {
         super(edgeCount, nodeMap);
     }
@@ -39,13 +48,95 @@ public class DirectedAcyclicGraph<N> extends DirectedGraph<N> implements Graph<N
         Objects.requireNonNull(nodeU, "nodeU");
         Objects.requireNonNull(nodeV, "nodeV");
 
-        if (super.containsNode(nodeU) && super.containsNode(nodeV) && GraphUtil.hasRoute(this, nodeV, nodeU)) {
+        if (nodeU.equals(nodeV)
+                || super.containsNode(nodeU) && super.containsNode(nodeV) && hasRoute(nodeV, nodeU)) {
             throw new IllegalStateException(String.format("DAG 图不能成环 nodeU ==> %s, nodeV ==> %s", nodeU, nodeV));
         }
         addEdge(nodeU, nodeV);
     }
 
+    @Override
+    public boolean addNode(N node) {
+        boolean added = super.addNode(node);
+        if (added && ancestorIndex != null) {
+            ancestorIndex.addNode(node);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeNode(N node) {
+        boolean removed = super.removeNode(node);
+        if (removed) {
+            ancestorIndex = null;
+        }
+        return removed;
+    }
+
+    @Override
+    public Object removeEdge(N nodeU, N nodeV) {
+        Object previousValue = super.removeEdge(nodeU, nodeV);
+        if (previousValue != null) {
+            ancestorIndex = null;
+        }
+        return previousValue;
+    }
+
+    /**
+     * 获取 node 的所有真祖先节点, 不包含 node 自身
+     * <p>
+     * 包含 node 自身的版本见 {@link GraphUtil#ancestorNodes(Graph, Object)}.
+     * 祖先索引已经构建时直接查索引, 否则沿前驱 BFS, 不会为此构建索引
+     *
+     * @param node
+     * @return
+     */
+    public Set<N> strictAncestors(N node) {
+        Objects.requireNonNull(node, "node");
+        if (ancestorIndex != null) {
+            return ancestorIndex.strictAncestors(node);
+        }
+        Set<N> ancestors = Sets.newLinkedHashSet(GraphUtil.ancestorNodes(this, node));
+        ancestors.remove(node);
+        return Collections.unmodifiableSet(ancestors);
+    }
+
+    /**
+     * 获取 nodeU 和 nodeV 的最近公共祖先, 没有公共祖先时返回空集合
+     * <p>
+     * 节点是另一节点的祖先时, 结果就是该节点本身, 这一点与 {@link #strictAncestors(Object)} 不同
+     * <p>
+     * 首次调用会构建祖先索引, 每个节点一个约 n 位的位图, 共 O(n²) 内存, 之后每次查询只合并结果节点的位图.
+     * 节点很多时请改用 {@link GraphUtil#ancestorNodes(Graph, Object)} 自行求交
+     *
+     * @param nodeU
+     * @param nodeV
+     * @return
+     */
+    public Set<N> lowestCommonAncestors(N nodeU, N nodeV) {
+        Objects.requireNonNull(nodeU, "nodeU");
+        Objects.requireNonNull(nodeV, "nodeV");
+        return ancestorIndex().lowestCommonAncestors(nodeU, nodeV);
+    }
+
     void addEdge(N nodeU, N nodeV) {
         super.putEdge(nodeU, nodeV);
+        if (ancestorIndex != null) {
+            ancestorIndex.addEdge(this, nodeU, nodeV);
+        }
+    }
+
+    private boolean hasRoute(N nodeU, N nodeV) {
+        if (ancestorIndex != null) {
+            return ancestorIndex.isAncestor(nodeU, nodeV);
+        }
+        return GraphUtil.hasRoute(this, nodeU, nodeV);
+    }
+
+    private AncestorIndex<N> ancestorIndex() {
+        if (ancestorIndex == null) {
+            ancestorIndex = AncestorIndex.of(this);
+        }
+        return ancestorIndex;
     }
 }
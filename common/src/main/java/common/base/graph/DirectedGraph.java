@@ -30,6 +30,12 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
     private Set<DirectedGraphEdge<N>> edges;
     private Set<N> nodes;
 
+    /**
+     * 节点与边的结构哈希, 随增删增量维护, 见 {@link AbstractGraph#hashCode()}
+     */
+    private int nodeHash;
+    private int edgeHash;
+
     public static <N1> DirectedGraph<N1> of() {
         return new DirectedGraph<>(0, Maps.newLinkedHashMap());
     }
@@ -46,6 +52,8 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
 
     @Override
     public void putEdge(N nodeU, N nodeV) {
+        Objects.requireNonNull(nodeU, "nodeU");
+        Objects.requireNonNull(nodeV, "nodeV");
         edges = null;
         DirectedGraphNode.Presence value = EDGE_EXISTS;
         DirectedGraphNode<N> directedGraphNodeU = nodeMap.get(nodeU);
@@ -62,6 +70,7 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
 
         if (previousValue == null) {
             edgeCount++;
+            edgeHash += edgeHash(nodeU, nodeV);
         }
     }
 
@@ -69,6 +78,7 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
     public boolean removeNode(N node) {
         Objects.requireNonNull(node, "node");
         nodes = null;
+        edges = null;
 
         DirectedGraphNode<N> directedGraphNode = nodeMap.get(node);
         if (directedGraphNode == null) {
@@ -76,14 +86,21 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
         }
 
         for (N successor : directedGraphNode.successors()) {
-            nodeMap.get(successor).removePredecessor(node);
+            // 自环在遍历前驱时统一处理
+            if (!successor.equals(node)) {
+                nodeMap.get(successor).removePredecessor(node);
+                --edgeCount;
+                edgeHash -= edgeHash(node, successor);
+            }
         }
 
         for (N predecessor : directedGraphNode.predecessors()) {
             nodeMap.get(predecessor).removeSuccessor(node);
             --edgeCount;
+            edgeHash -= edgeHash(predecessor, node);
         }
         nodeMap.remove(node);
+        nodeHash -= nodeHash(node);
         return true;
     }
 
@@ -102,6 +119,7 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
         if (previousValue != null) {
             directedGraphNodeV.removePredecessor(nodeU);
             --edgeCount;
+            edgeHash -= edgeHash(nodeU, nodeV);
         }
         return previousValue;
     }
@@ -126,6 +144,17 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
         return edges;
     }
 
+    @Override
+    public boolean hasEdgeConnecting(N nodeU, N nodeV) {
+        DirectedGraphNode<N> directedGraphNodeU = nodeMap.get(nodeU);
+        return directedGraphNodeU != null && directedGraphNodeU.hasSuccessor(nodeV);
+    }
+
+    @Override
+    public int hashCode() {
+        return structuralHash(nodeHash, edgeHash);
+    }
+
     @Override
     public Set<N> predecessors(N node) {
         return checkedConnections(node).predecessors();
@@ -149,6 +178,7 @@ public class DirectedGraph<N> extends AbstractGraph<N> implements Graph<N> {
         nodes = null;
         DirectedGraphNode<N> directedGraphNode = DirectedGraphNode.of();
         checkState(nodeMap.put(node, directedGraphNode) == null);
+        nodeHash += nodeHash(node);
         return directedGraphNode;
     }
 
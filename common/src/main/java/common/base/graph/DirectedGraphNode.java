@@ -1,33 +1,41 @@
 package common.base.graph;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
+ * 前驱和后继分开保存, 度数不超过 {@link #INLINE_CAPACITY} 时存放在数组中, 超过后转为 HashSet
+ *
  * @author zhaoju
  * @date 2018/9/3 22:47
  */
 
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 class DirectedGraphNode<N> {
-    private Map<N, Object> nodeValue;
+    /**
+     * 邻接数组的最大长度, 超过后改用 HashSet
+     */
+    static final int INLINE_CAPACITY = 8;
+    private static final int INITIAL_CAPACITY = 2;
+
+    /**
+     * null, Object[] 或者 Set
+     */
+    private Object predecessors;
+    private Object successors;
     @Getter
     private int predecessorCount;
     @Getter
     private int successorCount;
 
-    private static final Object PRED = new Object();
-
     public static <N1> DirectedGraphNode<N1> of() {
-        return new DirectedGraphNode<>(Maps.newHashMap(), 0, 0);
+        return new DirectedGraphNode<>(null, null, 0, 0);
     }
 
     /**
@@ -36,13 +44,7 @@ class DirectedGraphNode<N> {
      * @return
      */
     public Set<N> successors() {
-        Set<N> resultSet = Sets.newHashSet();
-        nodeValue.forEach((node, type) -> {
-            if (isSuccessor(type)) {
-                resultSet.add(node);
-            }
-        });
-        return Collections.unmodifiableSet(resultSet);
+        return toSet(successors, successorCount);
     }
 
     /**
@@ -51,11 +53,17 @@ class DirectedGraphNode<N> {
      * @return
      */
     public Set<N> predecessors() {
-        Set<N> resultSet = nodeValue.entrySet().stream()
-                .filter(entry -> isPredecessor(entry.getValue()))
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toSet());
-        return Collections.unmodifiableSet(resultSet);
+        return toSet(predecessors, predecessorCount);
+    }
+
+    /**
+     * node 是否为后继节点
+     *
+     * @param node
+     * @return
+     */
+    public boolean hasSuccessor(N node) {
+        return contains(successors, successorCount, node);
     }
 
     /**
@@ -66,19 +74,12 @@ class DirectedGraphNode<N> {
      * @return
      */
     public Presence addSuccessor(N node, Presence value) {
-        Object previousValue = nodeValue.put(node, value);
-        if (previousValue == null) {
-            ++successorCount;
-            return null;
-        } else if (previousValue instanceof PredAndSucc) {
-            nodeValue.put(node, new PredAndSucc(value));
-            return (Presence) ((PredAndSucc) previousValue).getSuccessorValue();
-        } else if (previousValue == PRED) {
-            nodeValue.put(node, new PredAndSucc(value));
-            ++successorCount;
-            return null;
+        if (contains(successors, successorCount, node)) {
+            return value;
         }
-        return (Presence) previousValue;
+        successors = add(successors, successorCount, node);
+        ++successorCount;
+        return null;
     }
 
     /**
@@ -88,49 +89,101 @@ class DirectedGraphNode<N> {
      * @param unused
      */
     public void addPredecessor(N node, Presence unused) {
-        Object previousValue = nodeValue.put(node, PRED);
-        if (previousValue == null) {
-            ++predecessorCount;
-        } else if (previousValue instanceof PredAndSucc) {
-            nodeValue.put(node, previousValue);
-        } else if (previousValue != PRED) {
-            nodeValue.put(node, new PredAndSucc(previousValue));
+        if (!contains(predecessors, predecessorCount, node)) {
+            predecessors = add(predecessors, predecessorCount, node);
             ++predecessorCount;
         }
     }
 
     public Presence removeSuccessor(N node) {
-        Object previousValue = nodeValue.get(node);
-        if (previousValue == null || previousValue == PRED) {
+        if (!remove(successors, successorCount, node)) {
             return null;
-        } else if (previousValue instanceof PredAndSucc) {
-            nodeValue.put(node, PRED);
-            --successorCount;
-            return (Presence) ((PredAndSucc) previousValue).successorValue;
-        } else {
-            nodeValue.remove(node);
-            --successorCount;
-            return (Presence) previousValue;
         }
+        --successorCount;
+        return Presence.EDGE_EXISTS;
     }
 
     public void removePredecessor(N node) {
-        Object previousValue = nodeValue.get(node);
-        if (previousValue == PRED) {
-            nodeValue.remove(node);
-            --predecessorCount;
-        } else if (previousValue instanceof PredAndSucc) {
-            nodeValue.put(node, ((PredAndSucc) previousValue).successorValue);
+        if (remove(predecessors, predecessorCount, node)) {
             --predecessorCount;
         }
     }
 
-    private boolean isSuccessor(Object value) {
-        return value != PRED && value != null;
+    private static boolean contains(Object adjacency, int count, Object node) {
+        if (adjacency instanceof Object[]) {
+            return indexOf((Object[]) adjacency, count, node) >= 0;
+        }
+        return adjacency != null && ((Set<?>) adjacency).contains(node);
+    }
+
+    /**
+     * 添加一个不存在的节点, 返回新的存储
+     */
+    @SuppressWarnings("unchecked")
+    private static Object add(Object adjacency, int count, Object node) {
+        if (adjacency == null) {
+            Object[] array = new Object[INITIAL_CAPACITY];
+            array[0] = node;
+            return array;
+        }
+        if (adjacency instanceof Set) {
+            ((Set<Object>) adjacency).add(node);
+            return adjacency;
+        }
+        Object[] array = (Object[]) adjacency;
+        if (count < array.length) {
+            array[count] = node;
+            return array;
+        }
+        if (array.length < INLINE_CAPACITY) {
+            array = Arrays.copyOf(array, Math.min(array.length * 2, INLINE_CAPACITY));
+            array[count] = node;
+            return array;
+        }
+        Set<Object> set = Sets.newHashSetWithExpectedSize(count + 1);
+        set.addAll(Arrays.asList(array));
+        set.add(node);
+        return set;
+    }
+
+    /**
+     * 删除节点, 数组中用末尾元素填补空位
+     */
+    private static boolean remove(Object adjacency, int count, Object node) {
+        if (adjacency instanceof Set) {
+            return ((Set<?>) adjacency).remove(node);
+        }
+        if (adjacency == null) {
+            return false;
+        }
+        Object[] array = (Object[]) adjacency;
+        int index = indexOf(array, count, node);
+        if (index < 0) {
+            return false;
+        }
+        array[index] = array[count - 1];
+        array[count - 1] = null;
+        return true;
+    }
+
+    private static int indexOf(Object[] array, int count, Object node) {
+        for (int i = 0; i < count; i++) {
+            if (array[i].equals(node)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private boolean isPredecessor(Object value) {
-        return value == PRED || value instanceof PredAndSucc;
+    @SuppressWarnings("unchecked")
+    private static <N> Set<N> toSet(Object adjacency, int count) {
+        if (adjacency == null) {
+            return ImmutableSet.of();
+        }
+        if (adjacency instanceof Set) {
+            return ImmutableSet.copyOf((Set<N>) adjacency);
+        }
+        return ImmutableSet.copyOf(Arrays.asList((N[]) adjacency).subList(0, count));
     }
 
     enum Presence {
@@ -139,11 +192,4 @@ class DirectedGraphNode<N> {
          */
         EDGE_EXISTS
     }
-
-    @Getter
-    @AllArgsConstructor
-    private static final class PredAndSucc {
-        private final Object successorValue;
-
-    }
 }
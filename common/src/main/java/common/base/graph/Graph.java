@@ -54,6 +54,17 @@ public interface Graph<N> {
      */
     Set<DirectedGraphEdge<N>> edges();
 
+    /**
+     * 是否存在一条从nodeU指向nodeV的边, 节点不在图中时返回 false
+     *
+     * @param nodeU
+     * @param nodeV
+     * @return
+     */
+    default boolean hasEdgeConnecting(N nodeU, N nodeV) {
+        return nodes().contains(nodeU) && successors(nodeU).contains(nodeV);
+    }
+
     /**
      * 获取 node 的所有后置节点
      *
@@ -0,0 +1,47 @@
+package common.base.graph;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 两个图之间的差异, 以 from 图为基准描述到 to 图新增和删除的节点与边
+ *
+ * @author zhaoju
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class GraphDifference<N> {
+
+    private final Set<N> addedNodes;
+    private final Set<N> removedNodes;
+    private final Set<DirectedGraphEdge<N>> addedEdges;
+    private final Set<DirectedGraphEdge<N>> removedEdges;
+
+    static <N1> GraphDifference<N1> of(Set<N1> addedNodes, Set<N1> removedNodes,
+                                       Set<DirectedGraphEdge<N1>> addedEdges, Set<DirectedGraphEdge<N1>> removedEdges) {
+        return new GraphDifference<>(addedNodes, removedNodes, addedEdges, removedEdges);
+    }
+
+    /**
+     * 两个图是否完全相同
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return addedNodes.isEmpty() && removedNodes.isEmpty()
+                && addedEdges.isEmpty() && removedEdges.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "GraphDifference{" +
+                "addedNodes=" + addedNodes +
+                ", removedNodes=" + removedNodes +
+                ", addedEdges=" + addedEdges +
+                ", removedEdges=" + removedEdges +
+                '}';
+    }
+}
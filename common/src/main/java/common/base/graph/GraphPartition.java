@@ -0,0 +1,72 @@
+package common.base.graph;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static common.base.graph.GraphUtil.NODE_NOT_IN_GRAPH;
+
+/**
+ * DAG 的 k 路划分结果
+ * <p>
+ * 边界边总是从编号小的分区指向编号大的分区, 所以按分区编号依次执行即可满足依赖
+ *
+ * @author zhaoju
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class GraphPartition<N> {
+
+    /**
+     * 每个分区的子图, 下标即分区编号
+     */
+    private final List<DirectedAcyclicGraph<N>> partitions;
+    /**
+     * 跨分区的边
+     */
+    private final List<DirectedGraphEdge<N>> boundaryEdges;
+    private final Map<N, Integer> partitionIndex;
+    /**
+     * 最大分区节点数与平均节点数之比, 1.0 表示完全均衡
+     */
+    private final double balance;
+
+    static <N1> GraphPartition<N1> of(List<DirectedAcyclicGraph<N1>> partitions, List<DirectedGraphEdge<N1>> boundaryEdges,
+                                      Map<N1, Integer> partitionIndex, double balance) {
+        return new GraphPartition<>(partitions, boundaryEdges, partitionIndex, balance);
+    }
+
+    /**
+     * 获取 node 所在的分区编号
+     *
+     * @param node
+     * @return
+     */
+    public int partitionOf(N node) {
+        Integer index = partitionIndex.get(node);
+        checkArgument(index != null, NODE_NOT_IN_GRAPH, node);
+        return index;
+    }
+
+    /**
+     * 割边数
+     *
+     * @return
+     */
+    public int getCutSize() {
+        return boundaryEdges.size();
+    }
+
+    @Override
+    public String toString() {
+        return "GraphPartition{" +
+                "partitions=" + partitions.size() +
+                ", cutSize=" + getCutSize() +
+                ", balance=" + balance +
+                '}';
+    }
+}
@@ -0,0 +1,339 @@
+package common.base.graph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * DAG 的多层 k 路划分
+ * <p>
+ * 先合并相邻节点逐层粗化, 在最粗的图上按拓扑序切成 k 段, 再逐层还原并用标签传播优化割边.
+ * 整个过程中每条边都满足 源节点分区 <= 目标节点分区, 分区之间不会成环
+ *
+ * @author zhaoju
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class GraphPartitioner {
+
+    /**
+     * 默认允许分区大小超出平均值的比例
+     */
+    static final double DEFAULT_IMBALANCE = 0.05;
+    /**
+     * 粗化到每个分区平均只剩这么多节点时停止
+     */
+    private static final int COARSEST_NODES_PER_PARTITION = 16;
+    /**
+     * 一轮粗化至少要减少的节点比例, 否则停止粗化
+     */
+    private static final double MIN_COARSEN_RATIO = 0.1;
+    private static final int REFINE_PASSES = 8;
+
+    public static <N> GraphPartition<N> partition(DirectedAcyclicGraph<N> graph, int partitionCount) {
+        return partition(graph, partitionCount, DEFAULT_IMBALANCE);
+    }
+
+    /**
+     * 把 graph 划分为 partitionCount 个分区
+     *
+     * @param graph
+     * @param partitionCount 分区数
+     * @param imbalance      允许分区大小超出平均值的比例, 每个分区最多 ceil((1 + imbalance) * n / k) 个节点,
+     *                       取整后 {@link GraphPartition#getBalance()} 可能略高于 1 + imbalance
+     * @param <N>
+     * @return
+     */
+    public static <N> GraphPartition<N> partition(DirectedAcyclicGraph<N> graph, int partitionCount, double imbalance) {
+        Objects.requireNonNull(graph, "graph");
+        checkArgument(partitionCount > 0, "Partition count %s must be positive.", partitionCount);
+        checkArgument(imbalance >= 0, "Imbalance %s must not be negative.", imbalance);
+
+        List<N> nodes = GraphUtil.topologicalSort(graph);
+        Map<N, Integer> nodeIds = Maps.newHashMapWithExpectedSize(nodes.size());
+        for (N node : nodes) {
+            nodeIds.put(node, nodeIds.size());
+        }
+        int maxWeight = Math.max(1, (int) Math.ceil((1 + imbalance) * nodes.size() / partitionCount));
+
+        Deque<Level> levels = Lists.newLinkedList();
+        Level level = Level.of(graph, nodes, nodeIds);
+        levels.push(level);
+        while (level.size > partitionCount * COARSEST_NODES_PER_PARTITION) {
+            level = level.coarsen(Math.max(1, maxWeight / 2));
+            if (level == null) {
+                break;
+            }
+            levels.push(level);
+        }
+
+        level = levels.pop();
+        int[] blocks = level.initialPartition(partitionCount);
+        level.refine(blocks, partitionCount, maxWeight);
+        while (!levels.isEmpty()) {
+            level = levels.pop();
+            blocks = level.project(blocks);
+            level.refine(blocks, partitionCount, maxWeight);
+        }
+        return toPartition(graph, nodes, blocks, partitionCount);
+    }
+
+    private static <N> GraphPartition<N> toPartition(DirectedAcyclicGraph<N> graph, List<N> nodes,
+                                                     int[] blocks, int partitionCount) {
+        List<DirectedAcyclicGraph<N>> partitions = Lists.newArrayListWithCapacity(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(DirectedAcyclicGraph.of());
+        }
+        Map<N, Integer> partitionIndex = Maps.newHashMapWithExpectedSize(nodes.size());
+        int[] partitionSizes = new int[partitionCount];
+        for (int i = 0; i < nodes.size(); i++) {
+            partitions.get(blocks[i]).addNode(nodes.get(i));
+            partitionIndex.put(nodes.get(i), blocks[i]);
+            partitionSizes[blocks[i]]++;
+        }
+
+        List<DirectedGraphEdge<N>> boundaryEdges = Lists.newArrayList();
+        for (N node : nodes) {
+            int block = partitionIndex.get(node);
+            for (N successor : graph.successors(node)) {
+                if (partitionIndex.get(successor) == block) {
+                    partitions.get(block).addEdge(node, successor);
+                } else {
+                    boundaryEdges.add(DirectedGraphEdge.of(node, successor));
+                }
+            }
+        }
+
+        double balance = nodes.isEmpty() ? 1.0
+                : Arrays.stream(partitionSizes).max().getAsInt() * (double) partitionCount / nodes.size();
+        return GraphPartition.of(Collections.unmodifiableList(partitions), Collections.unmodifiableList(boundaryEdges),
+                Collections.unmodifiableMap(partitionIndex), balance);
+    }
+
+    /**
+     * 粗化过程中的一层图, 节点用 0 ~ size-1 的编号表示, 节点和边都带权重
+     */
+    private static final class Level {
+        private final int size;
+        private final int[] weights;
+        private final List<Map<Integer, Integer>> successors;
+        private final List<Map<Integer, Integer>> predecessors;
+        /**
+         * 本层的拓扑序
+         */
+        private int[] order;
+        /**
+         * 本层节点在上一层(更粗)中的编号
+         */
+        private int[] parents;
+
+        private Level(int size) {
+            this.size = size;
+            this.weights = new int[size];
+            this.successors = Lists.newArrayListWithCapacity(size);
+            this.predecessors = Lists.newArrayListWithCapacity(size);
+            for (int i = 0; i < size; i++) {
+                successors.add(Maps.newLinkedHashMap());
+                predecessors.add(Maps.newLinkedHashMap());
+            }
+        }
+
+        static <N> Level of(Graph<N> graph, List<N> nodes, Map<N, Integer> nodeIds) {
+            Level level = new Level(nodes.size());
+            level.order = new int[nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                level.order[i] = i;
+                level.weights[i] = 1;
+                for (N successor : graph.successors(nodes.get(i))) {
+                    level.addEdge(i, nodeIds.get(successor), 1);
+                }
+            }
+            return level;
+        }
+
+        /**
+         * 沿边两两合并节点, 只合并 v 唯一的前驱是 u 或 u 唯一的后继是 v 的边 u -> v,
+         * 这样合并后不会产生环; 收益太小或者仍然成环时返回 null
+         *
+         * @param maxNodeWeight 合并后节点的最大权重
+         * @return
+         */
+        Level coarsen(int maxNodeWeight) {
+            int[] coarseIds = new int[size];
+            Arrays.fill(coarseIds, -1);
+            int coarseSize = 0;
+            for (int u : order) {
+                if (coarseIds[u] >= 0) {
+                    continue;
+                }
+                int matched = -1;
+                int matchedWeight = 0;
+                for (Map.Entry<Integer, Integer> entry : successors.get(u).entrySet()) {
+                    int v = entry.getKey();
+                    if (coarseIds[v] >= 0 || weights[u] + weights[v] > maxNodeWeight) {
+                        continue;
+                    }
+                    if (predecessors.get(v).size() != 1 && successors.get(u).size() != 1) {
+                        continue;
+                    }
+                    if (entry.getValue() > matchedWeight) {
+                        matched = v;
+                        matchedWeight = entry.getValue();
+                    }
+                }
+                coarseIds[u] = coarseSize;
+                if (matched >= 0) {
+                    coarseIds[matched] = coarseSize;
+                }
+                coarseSize++;
+            }
+            if (coarseSize > size * (1 - MIN_COARSEN_RATIO)) {
+                return null;
+            }
+
+            Level coarse = new Level(coarseSize);
+            for (int u = 0; u < size; u++) {
+                coarse.weights[coarseIds[u]] += weights[u];
+                for (Map.Entry<Integer, Integer> entry : successors.get(u).entrySet()) {
+                    int coarseV = coarseIds[entry.getKey()];
+                    if (coarseIds[u] != coarseV) {
+                        coarse.addEdge(coarseIds[u], coarseV, entry.getValue());
+                    }
+                }
+            }
+            if (!coarse.sort()) {
+                return null;
+            }
+            parents = coarseIds;
+            return coarse;
+        }
+
+        /**
+         * 按拓扑序累计权重切成 k 段
+         *
+         * @param partitionCount
+         * @return
+         */
+        int[] initialPartition(int partitionCount) {
+            long totalWeight = Math.max(1, Arrays.stream(weights).asLongStream().sum());
+            int[] blocks = new int[size];
+            long accumulated = 0;
+            for (int u : order) {
+                blocks[u] = (int) Math.min(partitionCount - 1, accumulated * partitionCount / totalWeight);
+                accumulated += weights[u];
+            }
+            return blocks;
+        }
+
+        int[] project(int[] coarseBlocks) {
+            int[] blocks = new int[size];
+            for (int u = 0; u < size; u++) {
+                blocks[u] = coarseBlocks[parents[u]];
+            }
+            return blocks;
+        }
+
+        /**
+         * 标签传播: 把节点移到与它相连边权最大的分区, 目标分区必须在
+         * [前驱的最大分区, 后继的最小分区] 之间, 且移动后不超过 maxWeight.
+         * 分区超重时允许割边不减少的移动, 割边相同时只在能改善均衡时移动
+         *
+         * @param blocks
+         * @param partitionCount
+         * @param maxWeight
+         */
+        void refine(int[] blocks, int partitionCount, int maxWeight) {
+            long[] blockWeights = new long[partitionCount];
+            for (int u = 0; u < size; u++) {
+                blockWeights[blocks[u]] += weights[u];
+            }
+            long[] connections = new long[partitionCount];
+            for (int pass = 0; pass < REFINE_PASSES; pass++) {
+                int moved = 0;
+                for (int u : order) {
+                    int from = blocks[u];
+                    int low = 0;
+                    int high = partitionCount - 1;
+                    Arrays.fill(connections, 0);
+                    for (Map.Entry<Integer, Integer> entry : predecessors.get(u).entrySet()) {
+                        low = Math.max(low, blocks[entry.getKey()]);
+                        connections[blocks[entry.getKey()]] += entry.getValue();
+                    }
+                    for (Map.Entry<Integer, Integer> entry : successors.get(u).entrySet()) {
+                        high = Math.min(high, blocks[entry.getKey()]);
+                        connections[blocks[entry.getKey()]] += entry.getValue();
+                    }
+
+                    boolean overweight = blockWeights[from] > maxWeight;
+                    int best = from;
+                    for (int to = low; to <= high; to++) {
+                        if (to == from || blockWeights[to] + weights[u] > maxWeight) {
+                            continue;
+                        }
+                        if (best == from && overweight) {
+                            best = to;
+                            continue;
+                        }
+                        long gain = connections[to] - connections[best];
+                        if (gain > 0 || gain == 0 && blockWeights[to] + weights[u] < blockWeights[best]
+                                + (best == from ? 0 : weights[u])) {
+                            best = to;
+                        }
+                    }
+                    if (best != from) {
+                        blocks[u] = best;
+                        blockWeights[from] -= weights[u];
+                        blockWeights[best] += weights[u];
+                        moved++;
+                    }
+                }
+                if (moved == 0) {
+                    break;
+                }
+            }
+        }
+
+        private void addEdge(int u, int v, int weight) {
+            successors.get(u).merge(v, weight, Integer::sum);
+            predecessors.get(v).merge(u, weight, Integer::sum);
+        }
+
+        /**
+         * 计算拓扑序, 有环时返回 false
+         *
+         * @return
+         */
+        private boolean sort() {
+            int[] inDegrees = new int[size];
+            for (int u = 0; u < size; u++) {
+                inDegrees[u] = predecessors.get(u).size();
+            }
+            order = new int[size];
+            int head = 0;
+            int tail = 0;
+            for (int u = 0; u < size; u++) {
+                if (inDegrees[u] == 0) {
+                    order[tail++] = u;
+                }
+            }
+            while (head < tail) {
+                int u = order[head++];
+                for (int v : successors.get(u).keySet()) {
+                    if (--inDegrees[v] == 0) {
+                        order[tail++] = v;
+                    }
+                }
+            }
+            return tail == size;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -49,7 +50,7 @@ public class GraphUtil {
     }
 
     /**
-     * 使用 BFS 获取从node 出发的所有可达节点
+     * 使用 BFS 获取从node 出发的所有可达节点, 包含 node 自身
      *
      * @param graph
      * @param node
@@ -57,20 +58,21 @@ public class GraphUtil {
      * @return
      */
     public static <N> Set<N> reachableNodes(Graph<N> graph, N node) {
-        checkArgument(graph.nodes().contains(node), NODE_NOT_IN_GRAPH, node);
-        Set<N> visitedNodes = Sets.newLinkedHashSet();
-        Queue<N> queuedNodes = Lists.newLinkedList();
-        visitedNodes.add(node);
-        queuedNodes.offer(node);
-        while (!queuedNodes.isEmpty()) {
-            N currentNode = queuedNodes.poll();
-            for (N successor : graph.successors(currentNode)) {
-                if (visitedNodes.add(successor)) {
-                    queuedNodes.offer(successor);
-                }
-            }
-        }
-        return Collections.unmodifiableSet(visitedNodes);
+        return breadthFirstNodes(graph, node, graph::successors);
+    }
+
+    /**
+     * 使用 BFS 沿前驱获取能到达 node 的所有节点, 与 reachableNodes 一样包含 node 自身
+     * <p>
+     * 不包含 node 自身的祖先见 {@link DirectedAcyclicGraph#strictAncestors(Object)}
+     *
+     * @param graph
+     * @param node
+     * @param <N>
+     * @return
+     */
+    public static <N> Set<N> ancestorNodes(Graph<N> graph, N node) {
+        return breadthFirstNodes(graph, node, graph::predecessors);
     }
 
     /**
@@ -101,6 +103,31 @@ public class GraphUtil {
         return subGraph;
     }
 
+    /**
+     * 比较两个图, 返回从 from 到 to 新增和删除的节点与边, 不会复制任何一个图
+     *
+     * @param from
+     * @param to
+     * @param <N>
+     * @return
+     */
+    public static <N> GraphDifference<N> difference(Graph<N> from, Graph<N> to) {
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(to, "to");
+        if (from == to || from.equals(to)) {
+            return GraphDifference.of(Collections.emptySet(), Collections.emptySet(),
+                    Collections.emptySet(), Collections.emptySet());
+        }
+        Set<N> addedNodes = Sets.newLinkedHashSet();
+        Set<N> removedNodes = Sets.newLinkedHashSet();
+        Set<DirectedGraphEdge<N>> addedEdges = Sets.newLinkedHashSet();
+        Set<DirectedGraphEdge<N>> removedEdges = Sets.newLinkedHashSet();
+        collectDifference(to, from, addedNodes, addedEdges);
+        collectDifference(from, to, removedNodes, removedEdges);
+        return GraphDifference.of(Collections.unmodifiableSet(addedNodes), Collections.unmodifiableSet(removedNodes),
+                Collections.unmodifiableSet(addedEdges), Collections.unmodifiableSet(removedEdges));
+    }
+
     /**
      * 获得拓扑排序
      *
@@ -168,6 +195,41 @@ public class GraphUtil {
         return false;
     }
 
+    /**
+     * 收集在 graph 中但不在 other 中的节点与边
+     */
+    private static <N> void collectDifference(Graph<N> graph, Graph<N> other,
+                                              Set<N> nodes, Set<DirectedGraphEdge<N>> edges) {
+        for (N node : graph.nodes()) {
+            boolean contained = other.nodes().contains(node);
+            if (!contained) {
+                nodes.add(node);
+            }
+            for (N successor : graph.successors(node)) {
+                if (!contained || !other.hasEdgeConnecting(node, successor)) {
+                    edges.add(DirectedGraphEdge.of(node, successor));
+                }
+            }
+        }
+    }
+
+    private static <N> Set<N> breadthFirstNodes(Graph<N> graph, N node, Function<N, Set<N>> neighbors) {
+        checkArgument(graph.nodes().contains(node), NODE_NOT_IN_GRAPH, node);
+        Set<N> visitedNodes = Sets.newLinkedHashSet();
+        Queue<N> queuedNodes = Lists.newLinkedList();
+        visitedNodes.add(node);
+        queuedNodes.offer(node);
+        while (!queuedNodes.isEmpty()) {
+            N currentNode = queuedNodes.poll();
+            for (N neighbor : neighbors.apply(currentNode)) {
+                if (visitedNodes.add(neighbor)) {
+                    queuedNodes.offer(neighbor);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(visitedNodes);
+    }
+
     private static <N> boolean dfs(Graph<N> graph, Set<N> visitedSet, N nodeU, N nodeV) {
         if (nodeU.equals(nodeV)) {
             return true;
@@ -0,0 +1,127 @@
+package common.base.graph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 用前驱 BFS 校验增量维护的祖先索引
+ *
+ * @author zhaoju
+ */
+public class AncestorIndexTest {
+
+    private static final int NODE_COUNT = 40;
+    private static final int OPERATION_COUNT = 3000;
+
+    @Test
+    public void ancestorsMatchBreadthFirstSearch() {
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            DirectedAcyclicGraph<Integer> graph = DirectedAcyclicGraph.of();
+            for (int i = 0; i < OPERATION_COUNT; i++) {
+                int nodeU = random.nextInt(NODE_COUNT);
+                int nodeV = random.nextInt(NODE_COUNT);
+                int operation = random.nextInt(20);
+                if (operation == 0) {
+                    graph.removeNode(nodeU);
+                } else if (operation < 4) {
+                    graph.removeEdge(nodeU, nodeV);
+                } else if (operation < 6) {
+                    graph.addNode(nodeU);
+                } else {
+                    putEdge(graph, nodeU, nodeV);
+                }
+                // lowestCommonAncestors 会构建索引, 之后的加点加边走增量维护, strictAncestors 也改查索引
+                if (graph.nodes().contains(nodeU) && graph.nodes().contains(nodeV)) {
+                    assertAncestors(graph, nodeU);
+                    assertLowestCommonAncestors(graph, nodeU, nodeV);
+                }
+            }
+            for (Integer node : graph.nodes()) {
+                assertAncestors(graph, node);
+            }
+        }
+    }
+
+    @Test
+    public void lowestCommonAncestorsOfDiamond() {
+        DirectedAcyclicGraph<String> graph = DirectedAcyclicGraph.of();
+        graph.putEdge("r", "a");
+        graph.putEdge("r", "b");
+        graph.putEdge("a", "c");
+        graph.putEdge("b", "c");
+        graph.putEdge("a", "d");
+        graph.putEdge("b", "d");
+
+        assertEquals(Sets.newHashSet("a", "b"), graph.lowestCommonAncestors("c", "d"));
+        assertEquals(Sets.newHashSet("a"), graph.lowestCommonAncestors("a", "c"));
+        assertEquals(Sets.newHashSet("r", "a", "b"), graph.strictAncestors("c"));
+
+        // 新节点编号大于已有节点, 但位于它们上游
+        graph.putEdge("x", "r");
+        graph.putEdge("a", "b");
+        assertEquals(Sets.newHashSet("b"), graph.lowestCommonAncestors("c", "d"));
+        assertEquals(Sets.newHashSet("x", "r", "a", "b"), graph.strictAncestors("d"));
+
+        graph.removeEdge("a", "b");
+        assertEquals(Sets.newHashSet("a", "b"), graph.lowestCommonAncestors("c", "d"));
+        graph.addNode("z");
+        assertTrue(graph.lowestCommonAncestors("z", "c").isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void selfLoopOnNewNodeIsRejected() {
+        DirectedAcyclicGraph.<String>of().putEdge("a", "a");
+    }
+
+    /**
+     * putEdge 只在 nodeU == nodeV 或者 nodeV 能到达 nodeU 时拒绝
+     */
+    private static void putEdge(DirectedAcyclicGraph<Integer> graph, int nodeU, int nodeV) {
+        boolean cyclic = nodeU == nodeV || graph.nodes().contains(nodeU) && graph.nodes().contains(nodeV)
+                && GraphUtil.ancestorNodes(graph, nodeU).contains(nodeV);
+        try {
+            graph.putEdge(nodeU, nodeV);
+            assertFalse(nodeU + " -> " + nodeV + " should be rejected", cyclic);
+        } catch (IllegalStateException e) {
+            assertTrue(nodeU + " -> " + nodeV + " should be accepted", cyclic);
+        }
+    }
+
+    private static void assertAncestors(DirectedAcyclicGraph<Integer> graph, Integer node) {
+        Set<Integer> expected = Sets.newHashSet(GraphUtil.ancestorNodes(graph, node));
+        expected.remove(node);
+        assertEquals(expected, graph.strictAncestors(node));
+    }
+
+    private static void assertLowestCommonAncestors(DirectedAcyclicGraph<Integer> graph, Integer nodeU, Integer nodeV) {
+        Set<Integer> common = Sets.intersection(GraphUtil.ancestorNodes(graph, nodeU), GraphUtil.ancestorNodes(graph, nodeV));
+        List<Integer> expected = Lists.newArrayList();
+        for (Integer candidate : common) {
+            boolean lowest = true;
+            for (Integer other : common) {
+                if (!other.equals(candidate) && GraphUtil.ancestorNodes(graph, other).contains(candidate)) {
+                    lowest = false;
+                    break;
+                }
+            }
+            if (lowest) {
+                expected.add(candidate);
+            }
+        }
+        Set<Integer> actual = graph.lowestCommonAncestors(nodeU, nodeV);
+        if (!Sets.newHashSet(expected).equals(actual)) {
+            fail("lca(" + nodeU + ", " + nodeV + ") expected " + expected + " but was " + actual + " in " + graph);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package common.base.graph;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+import java.util.Set;
+
+import static common.base.graph.DirectedGraphNode.INLINE_CAPACITY;
+import static common.base.graph.DirectedGraphNode.Presence.EDGE_EXISTS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用 HashSet 模型校验数组与 HashSet 两种邻接存储
+ *
+ * @author zhaoju
+ */
+public class DirectedGraphNodeTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectedGraphNodeTest.class);
+
+    @Test
+    public void growAcrossInlineCapacityAndShrinkBack() {
+        DirectedGraphNode<Integer> node = DirectedGraphNode.of();
+        Set<Integer> successors = Sets.newHashSet();
+        Set<Integer> predecessors = Sets.newHashSet();
+        // 依次经过 2 -> 4 -> 8 的数组扩容, 再超过 INLINE_CAPACITY 转为 HashSet
+        for (int i = 0; i < INLINE_CAPACITY * 2; i++) {
+            assertNull(node.addSuccessor(i, EDGE_EXISTS));
+            assertEquals(EDGE_EXISTS, node.addSuccessor(i, EDGE_EXISTS));
+            node.addPredecessor(-i, EDGE_EXISTS);
+            node.addPredecessor(-i, EDGE_EXISTS);
+            successors.add(i);
+            predecessors.add(-i);
+            assertNode(successors, predecessors, node);
+        }
+        // 从 HashSet 删回阈值以下, 再重新加入
+        for (int i = 0; i < INLINE_CAPACITY * 2; i += 2) {
+            assertEquals(EDGE_EXISTS, node.removeSuccessor(i));
+            assertNull(node.removeSuccessor(i));
+            node.removePredecessor(-i);
+            successors.remove(i);
+            predecessors.remove(-i);
+            assertNode(successors, predecessors, node);
+        }
+        assertNull(node.addSuccessor(0, EDGE_EXISTS));
+        successors.add(0);
+        assertNode(successors, predecessors, node);
+    }
+
+    @Test
+    public void removeFromInlineArray() {
+        DirectedGraphNode<Integer> node = DirectedGraphNode.of();
+        Set<Integer> successors = Sets.newHashSet();
+        for (int i = 0; i < INLINE_CAPACITY; i++) {
+            node.addSuccessor(i, EDGE_EXISTS);
+            successors.add(i);
+        }
+        // 删除头部、中间、末尾, 空位由末尾元素填补
+        for (int removed : new int[]{0, INLINE_CAPACITY / 2, INLINE_CAPACITY - 1, 1}) {
+            assertEquals(EDGE_EXISTS, node.removeSuccessor(removed));
+            successors.remove(removed);
+            assertNode(successors, Sets.newHashSet(), node);
+        }
+        // 删除后重新加入, 不能重复计数
+        for (int i = 0; i < INLINE_CAPACITY; i++) {
+            node.addSuccessor(i, EDGE_EXISTS);
+            successors.add(i);
+            assertNode(successors, Sets.newHashSet(), node);
+        }
+        assertNull(node.removeSuccessor(INLINE_CAPACITY));
+        assertNode(successors, Sets.newHashSet(), node);
+    }
+
+    @Test
+    public void randomOperationsMatchModel() {
+        for (int seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            DirectedGraphNode<Integer> node = DirectedGraphNode.of();
+            Set<Integer> successors = Sets.newHashSet();
+            Set<Integer> predecessors = Sets.newHashSet();
+            for (int i = 0; i < 2000; i++) {
+                int other = random.nextInt(INLINE_CAPACITY * 2);
+                // 偏向添加, 让度数在阈值上下来回穿越
+                boolean add = random.nextInt(5) < 3;
+                if (random.nextBoolean()) {
+                    if (add) {
+                        assertEquals(!successors.add(other), node.addSuccessor(other, EDGE_EXISTS) != null);
+                    } else {
+                        assertEquals(successors.remove(other), node.removeSuccessor(other) != null);
+                    }
+                } else if (add) {
+                    predecessors.add(other);
+                    node.addPredecessor(other, EDGE_EXISTS);
+                } else {
+                    predecessors.remove(other);
+                    node.removePredecessor(other);
+                }
+                assertNode(successors, predecessors, node);
+            }
+        }
+    }
+
+    /**
+     * 打印每个节点、每条边的内存占用, 包含图中 nodeMap 的条目
+     */
+    @Test
+    public void reportMemoryPerNodeAndEdge() {
+        int nodeCount = 100000;
+        Integer[] nodes = new Integer[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[i] = i;
+        }
+        for (int degree : new int[]{1, 2, 4}) {
+            long before = usedMemory();
+            DirectedGraph<Integer> graph = DirectedGraph.of();
+            for (Integer node : nodes) {
+                graph.addNode(node);
+            }
+            long withNodes = usedMemory();
+            for (int i = 0; i < nodeCount; i++) {
+                for (int j = 1; j <= degree; j++) {
+                    graph.putEdge(nodes[i], nodes[(i + j * 7) % nodeCount]);
+                }
+            }
+            long withEdges = usedMemory();
+            double bytesPerNode = (withNodes - before) / (double) nodeCount;
+            double bytesPerEdge = (withEdges - withNodes) / (double) graph.getEdgeCount();
+            LOGGER.info("out-degree {}: {} bytes/node, {} bytes/edge",
+                    degree, Math.round(bytesPerNode), Math.round(bytesPerEdge));
+            // 改用数组前每条边约 84 ~ 144 字节
+            assertTrue("bytes/edge=" + bytesPerEdge, bytesPerEdge < 64);
+            assertEquals(nodeCount * degree, graph.getEdgeCount());
+        }
+    }
+
+    private static void assertNode(Set<Integer> successors, Set<Integer> predecessors, DirectedGraphNode<Integer> node) {
+        assertEquals(successors, node.successors());
+        assertEquals(predecessors, node.predecessors());
+        assertEquals(successors.size(), node.getSuccessorCount());
+        assertEquals(predecessors.size(), node.getPredecessorCount());
+        for (int i = -INLINE_CAPACITY * 2; i <= INLINE_CAPACITY * 2; i++) {
+            assertEquals(successors.contains(i), node.hasSuccessor(i));
+        }
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,133 @@
+package common.base.graph;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 校验增量维护的结构哈希和边数
+ *
+ * @author zhaoju
+ */
+public class DirectedGraphTest {
+
+    private static final int NODE_COUNT = 30;
+    private static final int OPERATION_COUNT = 2000;
+
+    @Test
+    public void structuralHashMatchesRebuiltGraph() {
+        for (int seed = 0; seed < 10; seed++) {
+            Random random = new Random(seed);
+            DirectedGraph<Integer> graph = DirectedGraph.of();
+            for (int i = 0; i < OPERATION_COUNT; i++) {
+                randomOperation(graph, random, NODE_COUNT);
+                if (i % 10 == 0) {
+                    assertStructure(graph, random);
+                }
+            }
+            assertStructure(graph, random);
+        }
+    }
+
+    @Test
+    public void removeNodeWithSelfLoop() {
+        DirectedGraph<String> graph = DirectedGraph.of();
+        graph.putEdge("a", "a");
+        graph.putEdge("a", "b");
+        graph.putEdge("c", "a");
+        graph.putEdge("b", "c");
+        assertEquals(4, graph.getEdgeCount());
+
+        assertTrue(graph.removeNode("a"));
+        assertEquals(1, graph.getEdgeCount());
+        assertEquals(Sets.newHashSet(DirectedGraphEdge.of("b", "c")), graph.edges());
+
+        DirectedGraph<String> expected = DirectedGraph.of();
+        expected.putEdge("b", "c");
+        assertEquals(expected, graph);
+        assertEquals(expected.hashCode(), graph.hashCode());
+    }
+
+    @Test
+    public void putEdgeRejectsNullWithoutChangingGraph() {
+        DirectedGraph<String> graph = DirectedGraph.of();
+        graph.putEdge("a", "b");
+        int hashCode = graph.hashCode();
+        try {
+            graph.putEdge(null, "x");
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals(Sets.newHashSet("a", "b"), graph.nodes());
+            assertEquals(hashCode, graph.hashCode());
+            assertEquals(1, graph.getEdgeCount());
+        }
+    }
+
+    static void randomOperation(DirectedGraph<Integer> graph, Random random, int nodeCount) {
+        int nodeU = random.nextInt(nodeCount);
+        int nodeV = random.nextInt(nodeCount);
+        int operation = random.nextInt(10);
+        if (operation == 0) {
+            graph.removeNode(nodeU);
+        } else if (operation < 3) {
+            graph.removeEdge(nodeU, nodeV);
+        } else if (operation < 4) {
+            graph.addNode(nodeU);
+        } else {
+            graph.putEdge(nodeU, nodeV);
+        }
+    }
+
+    /**
+     * 按打乱后的顺序重建图, 比较哈希、相等性和边数
+     */
+    private static void assertStructure(DirectedGraph<Integer> graph, Random random) {
+        List<Integer> nodes = Lists.newArrayList(graph.nodes());
+        List<DirectedGraphEdge<Integer>> edges = Lists.newArrayList(graph.edges());
+        Collections.shuffle(nodes, random);
+        Collections.shuffle(edges, random);
+        DirectedGraph<Integer> rebuilt = DirectedGraph.of();
+        nodes.forEach(rebuilt::addNode);
+        edges.forEach(edge -> rebuilt.putEdge(edge.source(), edge.target()));
+
+        assertEquals(edges.size(), graph.getEdgeCount());
+        assertEquals(rebuilt.getEdgeCount(), graph.getEdgeCount());
+        assertEquals(rebuilt.hashCode(), graph.hashCode());
+        assertEquals(recomputedHash(graph), graph.hashCode());
+        assertEquals(rebuilt, graph);
+        assertEquals(graph, rebuilt);
+
+        if (nodes.size() > 1) {
+            Integer nodeU = nodes.get(0);
+            Integer nodeV = nodes.get(1);
+            if (rebuilt.hasEdgeConnecting(nodeU, nodeV)) {
+                rebuilt.removeEdge(nodeU, nodeV);
+            } else {
+                rebuilt.putEdge(nodeU, nodeV);
+            }
+            assertNotEquals(rebuilt, graph);
+            assertNotEquals(graph, rebuilt);
+        }
+    }
+
+    private static int recomputedHash(Graph<Integer> graph) {
+        int nodeHash = 0;
+        int edgeHash = 0;
+        for (Integer node : graph.nodes()) {
+            nodeHash += AbstractGraph.nodeHash(node);
+        }
+        for (DirectedGraphEdge<Integer> edge : graph.edges()) {
+            edgeHash += AbstractGraph.edgeHash(edge.source(), edge.target());
+        }
+        return AbstractGraph.structuralHash(nodeHash, edgeHash);
+    }
+}
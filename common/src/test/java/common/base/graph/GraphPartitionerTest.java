@@ -0,0 +1,152 @@
+package common.base.graph;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhaoju
+ */
+public class GraphPartitionerTest {
+
+    private static final int NODE_COUNT = 3000;
+    private static final int[] PARTITION_COUNTS = {1, 2, 3, 4, 8, 16, 50};
+
+    @Test
+    public void partitionKeepsEdgesForwardAndBalanced() {
+        for (int seed = 1; seed <= 5; seed++) {
+            DirectedAcyclicGraph<Integer> graph = randomGraph(NODE_COUNT, new Random(seed));
+            for (int partitionCount : PARTITION_COUNTS) {
+                assertPartition(graph, GraphPartitioner.partition(graph, partitionCount), partitionCount);
+            }
+        }
+    }
+
+    @Test
+    public void partitionStarGraph() {
+        DirectedAcyclicGraph<Integer> graph = DirectedAcyclicGraph.of();
+        for (int i = 1; i < 1000; i++) {
+            graph.addEdge(0, i);
+        }
+        for (int partitionCount : PARTITION_COUNTS) {
+            assertPartition(graph, GraphPartitioner.partition(graph, partitionCount), partitionCount);
+        }
+    }
+
+    @Test
+    public void workersRunPartitionsInDependencyOrder() throws Exception {
+        DirectedAcyclicGraph<Integer> graph = randomGraph(NODE_COUNT, new Random(2));
+        for (int partitionCount : PARTITION_COUNTS) {
+            GraphPartition<Integer> partition = GraphPartitioner.partition(graph, partitionCount);
+            Map<Integer, Integer> finishOrder = runWorkers(partition);
+
+            assertEquals(graph.nodes().size(), finishOrder.size());
+            for (DirectedGraphEdge<Integer> edge : graph.edges()) {
+                assertTrue(edge.toString(), finishOrder.get(edge.source()) < finishOrder.get(edge.target()));
+            }
+        }
+    }
+
+    @Test
+    public void partitionSmallGraphs() {
+        GraphPartition<Integer> empty = GraphPartitioner.partition(DirectedAcyclicGraph.of(), 4);
+        assertEquals(4, empty.getPartitions().size());
+        assertEquals(0, empty.getCutSize());
+        assertEquals(1.0, empty.getBalance(), 0.0);
+
+        DirectedAcyclicGraph<Integer> graph = randomGraph(10, new Random(3));
+        GraphPartition<Integer> partition = GraphPartitioner.partition(graph, 20);
+        assertEquals(graph.nodes().size(), partition.getPartitionIndex().size());
+        for (DirectedGraphEdge<Integer> edge : partition.getBoundaryEdges()) {
+            assertTrue(partition.partitionOf(edge.source()) < partition.partitionOf(edge.target()));
+        }
+    }
+
+    /**
+     * 分区覆盖所有节点和边, 边界边只从小分区指向大分区, 每个分区不超过 ceil((1 + imbalance) * n / k) 个节点
+     */
+    private static void assertPartition(DirectedAcyclicGraph<Integer> graph, GraphPartition<Integer> partition,
+                                        int partitionCount) {
+        int maxPartitionSize = (int) Math.ceil(
+                (1 + GraphPartitioner.DEFAULT_IMBALANCE) * graph.nodes().size() / partitionCount);
+        assertEquals(partitionCount, partition.getPartitions().size());
+        int nodeCount = 0;
+        int edgeCount = 0;
+        for (DirectedAcyclicGraph<Integer> subGraph : partition.getPartitions()) {
+            assertTrue("k=" + partitionCount + " size=" + subGraph.nodes().size() + " max=" + maxPartitionSize,
+                    subGraph.nodes().size() <= maxPartitionSize);
+            nodeCount += subGraph.nodes().size();
+            edgeCount += subGraph.getEdgeCount();
+        }
+        assertEquals(graph.nodes().size(), nodeCount);
+        assertEquals(graph.getEdgeCount(), edgeCount + partition.getCutSize());
+        for (DirectedGraphEdge<Integer> edge : partition.getBoundaryEdges()) {
+            assertTrue(edge.toString(), partition.partitionOf(edge.source()) < partition.partitionOf(edge.target()));
+        }
+    }
+
+    /**
+     * 每个分区一个线程, 等待所有入边所在的分区完成后按拓扑序执行本分区, 返回每个节点的完成次序
+     */
+    private static Map<Integer, Integer> runWorkers(GraphPartition<Integer> partition) throws Exception {
+        List<DirectedAcyclicGraph<Integer>> partitions = partition.getPartitions();
+        List<CountDownLatch> finished = partitions.stream()
+                .map(subGraph -> new CountDownLatch(1))
+                .collect(Collectors.toList());
+        Map<Integer, Integer> finishOrder = new ConcurrentHashMap<>();
+        AtomicInteger sequence = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(partitions.size());
+        try {
+            List<Future<?>> futures = IntStream.range(0, partitions.size()).mapToObj(index -> executor.submit(() -> {
+                for (DirectedGraphEdge<Integer> edge : partition.getBoundaryEdges()) {
+                    if (partition.partitionOf(edge.target()) == index) {
+                        finished.get(partition.partitionOf(edge.source())).await();
+                    }
+                }
+                for (Integer node : GraphUtil.topologicalSort(partitions.get(index))) {
+                    finishOrder.put(node, sequence.getAndIncrement());
+                }
+                finished.get(index).countDown();
+                return null;
+            })).collect(Collectors.toList());
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return finishOrder;
+    }
+
+    /**
+     * 每个节点随机连向之前 50 个节点中的 1 ~ 3 个
+     */
+    static DirectedAcyclicGraph<Integer> randomGraph(int nodeCount, Random random) {
+        DirectedAcyclicGraph<Integer> graph = DirectedAcyclicGraph.of();
+        for (int i = 0; i < nodeCount; i++) {
+            graph.addNode(i);
+        }
+        for (int i = 1; i < nodeCount; i++) {
+            int degree = 1 + random.nextInt(3);
+            for (int j = 0; j < degree; j++) {
+                graph.addEdge(i - 1 - random.nextInt(Math.min(i, 50)), i);
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,43 @@
+package common.base.graph;
+
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhaoju
+ */
+public class GraphUtilTest {
+
+    private static final int NODE_COUNT = 30;
+
+    @Test
+    public void differenceMatchesSetDifference() {
+        for (int seed = 0; seed < 50; seed++) {
+            Random random = new Random(seed);
+            DirectedGraph<Integer> from = DirectedGraph.of();
+            for (int i = 0; i < 200; i++) {
+                DirectedGraphTest.randomOperation(from, random, NODE_COUNT);
+            }
+            DirectedGraph<Integer> to = DirectedGraph.of();
+            from.nodes().forEach(to::addNode);
+            from.edges().forEach(edge -> to.putEdge(edge.source(), edge.target()));
+            assertTrue(GraphUtil.difference(from, to).isEmpty());
+
+            int changeCount = random.nextInt(20);
+            for (int i = 0; i < changeCount; i++) {
+                DirectedGraphTest.randomOperation(to, random, NODE_COUNT + 5);
+            }
+            GraphDifference<Integer> difference = GraphUtil.difference(from, to);
+            assertEquals(Sets.difference(to.nodes(), from.nodes()), difference.getAddedNodes());
+            assertEquals(Sets.difference(from.nodes(), to.nodes()), difference.getRemovedNodes());
+            assertEquals(Sets.difference(to.edges(), from.edges()), difference.getAddedEdges());
+            assertEquals(Sets.difference(from.edges(), to.edges()), difference.getRemovedEdges());
+            assertEquals(from.equals(to), difference.isEmpty());
+        }
+    }
+}